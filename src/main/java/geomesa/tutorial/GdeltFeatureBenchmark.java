@@ -0,0 +1,456 @@
+package geomesa.tutorial;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Copyright 2014 Commonwealth Computer Research, Inc.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compares the memory footprint and attribute access throughput of {@link GdeltSimpleFeature}
+ * against the default GeoTools SimpleFeature implementation, after verifying that both hold the
+ * same data.
+ */
+public class GdeltFeatureBenchmark {
+
+    private static final String COUNT_ARG = "count";
+    private static final String ITERATIONS_ARG = "iterations";
+
+    // values() clones the array on every call, which would show up in the timed loops
+    private static final GdeltFeature.Attributes[] ATTRIBUTES = GdeltFeature.Attributes.values();
+
+    // attributes grouped by type, so the typed read loop doesn't have to inspect each attribute
+    private static final GdeltFeature.Attributes[] INT_ATTRIBUTES = attributesOfType("Integer");
+    private static final GdeltFeature.Attributes[] FLOAT_ATTRIBUTES = attributesOfType("Float");
+    private static final GdeltFeature.Attributes[] DATE_ATTRIBUTES = attributesOfType("Date");
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    // a small pool of strings shared by all features, so that we measure the per-feature overhead
+    // rather than the size of the string data
+    private static final String[] STRINGS = new String[] {"USA", "UNITED STATES", "GBR", "UNITED KINGDOM",
+                                                          "UKR", "UKRAINE", "GOV", "MIL", "042", "04"};
+
+    private static GdeltFeature.Attributes[] attributesOfType(String type) {
+        List<GdeltFeature.Attributes> attributes = new ArrayList<GdeltFeature.Attributes>();
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            if (type.equals(attribute.getType())) {
+                attributes.add(attribute);
+            }
+        }
+        return attributes.toArray(new GdeltFeature.Attributes[attributes.size()]);
+    }
+
+    /**
+     * Fills an array of attribute values with pseudo-random data for the GDELT schema.
+     *
+     * @param random
+     * @return
+     */
+    static Object[] randomValues(Random random) {
+        Object[] values = new Object[ATTRIBUTES.length];
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            String type = attribute.getType();
+            Object value;
+            if ("Integer".equals(type)) {
+                // stay out of the Integer cache so the default feature pays for its boxes
+                value = 1000 + random.nextInt(Integer.MAX_VALUE - 1000);
+            } else if ("Float".equals(type)) {
+                value = random.nextFloat() * 100;
+            } else if ("Date".equals(type)) {
+                value = new Date(1388534400000L + random.nextInt(Integer.MAX_VALUE));
+            } else if ("Point".equals(type)) {
+                value = GEOMETRY_FACTORY.createPoint(new Coordinate(random.nextDouble() * 360 - 180,
+                                                                    random.nextDouble() * 180 - 90));
+            } else {
+                value = STRINGS[random.nextInt(STRINGS.length)];
+            }
+            values[attribute.ordinal()] = value;
+        }
+        return values;
+    }
+
+    static SimpleFeature[] buildDefaultFeatures(SimpleFeatureType featureType, int count) {
+        Random random = new Random(42);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(featureType);
+        SimpleFeature[] features = new SimpleFeature[count];
+        for (int i = 0; i < count; i++) {
+            builder.addAll(randomValues(random));
+            features[i] = builder.buildFeature(String.valueOf(i));
+        }
+        return features;
+    }
+
+    static GdeltSimpleFeature[] buildCompactFeatures(SimpleFeatureType featureType, int count) {
+        Random random = new Random(42);
+        GdeltSimpleFeature[] features = new GdeltSimpleFeature[count];
+        for (int i = 0; i < count; i++) {
+            GdeltSimpleFeature feature = new GdeltSimpleFeature(featureType, String.valueOf(i));
+            feature.setAttributes(randomValues(random));
+            features[i] = feature;
+        }
+        return features;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Verification failed: " + message);
+        }
+    }
+
+    private static void checkThrows(Class<? extends Exception> expected, Runnable action, String message) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            check(expected.isInstance(e), message + " threw " + e + " instead of " + expected.getSimpleName());
+            return;
+        }
+        check(false, message + " did not throw " + expected.getSimpleName());
+    }
+
+    // dates are compared by time, since a converted date may be a subclass such as java.sql.Timestamp
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof Date && b instanceof Date) {
+            return ((Date) a).getTime() == ((Date) b).getTime();
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static void checkSameAttributes(SimpleFeature expected, SimpleFeature actual, String message) {
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            Object e = expected.getAttribute(attribute.ordinal());
+            Object a = actual.getAttribute(attribute.ordinal());
+            check(sameValue(e, a), message + ": " + attribute.getName() + " expected " + e + " but was " + a);
+        }
+        check(expected.getBounds().equals(actual.getBounds()), message + ": bounds differ");
+    }
+
+    /**
+     * Verifies that {@link GdeltSimpleFeature} behaves like the default implementation before we
+     * measure it. Throws an IllegalStateException on the first difference.
+     *
+     * @param featureType
+     * @param count
+     *
+     * @throws SchemaException
+     */
+    static void verify(final SimpleFeatureType featureType, int count) throws SchemaException {
+        System.out.println("Verifying against the default implementation");
+
+        // all attributes round-trip to the same values, including bounds
+        SimpleFeature[] defaults = buildDefaultFeatures(featureType, count);
+        GdeltSimpleFeature[] compacts = buildCompactFeatures(featureType, count);
+        for (int i = 0; i < count; i++) {
+            check(defaults[i].getID().equals(compacts[i].getID()), "feature " + i + ": ids differ");
+            checkSameAttributes(defaults[i], compacts[i], "feature " + i);
+        }
+
+        // null in and out of every attribute, covering each storage kind
+        final GdeltSimpleFeature compact = compacts[0];
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            Object original = compact.getAttribute(attribute.ordinal());
+            compact.setAttribute(attribute.ordinal(), null);
+            check(compact.isNull(attribute) && compact.getAttribute(attribute.ordinal()) == null,
+                  attribute.getName() + " did not read back as null");
+            compact.setAttribute(attribute.ordinal(), original);
+            check(!compact.isNull(attribute) && sameValue(original, compact.getAttribute(attribute.ordinal())),
+                  attribute.getName() + " did not read back after being nulled");
+        }
+        checkSameAttributes(defaults[0], compact, "feature 0 after nulling");
+
+        // an empty geometry gives empty bounds
+        compact.setDefaultGeometry(null);
+        check(compact.getBounds().isEmpty(), "bounds of a null geometry are not empty");
+        compact.setDefaultGeometry(defaults[0].getDefaultGeometry());
+
+        // strings are converted the same way SimpleFeatureBuilder converts them
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(featureType);
+        builder.init(defaults[0]);
+        GdeltSimpleFeature converted = new GdeltSimpleFeature(featureType, defaults[0].getID());
+        converted.setAttributes(defaults[0].getAttributes());
+        String[][] strings = new String[][] {{GdeltFeature.Attributes.GLOBALEVENTID.getName(), "123456"},
+                                             {GdeltFeature.Attributes.AvgTone.getName(), "-2.5"},
+                                             {GdeltFeature.Attributes.SQLDATE.getName(), "2014-02-02T00:00:00Z"}};
+        for (String[] value : strings) {
+            builder.set(value[0], value[1]);
+            converted.setAttribute(value[0], value[1]);
+        }
+        SimpleFeature expected = builder.buildFeature(defaults[0].getID());
+        check(Integer.valueOf(123456).equals(converted.getAttribute(GdeltFeature.Attributes.GLOBALEVENTID.getName())),
+              "String was not converted to Integer");
+        check(Float.valueOf(-2.5f).equals(converted.getAttribute(GdeltFeature.Attributes.AvgTone.getName())),
+              "String was not converted to Float");
+        check(converted.getAttribute(GdeltFeature.Attributes.SQLDATE.getName()) instanceof Date,
+              "String was not converted to Date");
+        checkSameAttributes(expected, converted, "converted strings");
+
+        // out-of-range indexes are rejected without touching the null bitmap
+        checkThrows(IndexOutOfBoundsException.class, new Runnable() {
+            public void run() {
+                compact.getAttribute(64);
+            }
+        }, "getAttribute(64)");
+        checkThrows(IndexOutOfBoundsException.class, new Runnable() {
+            public void run() {
+                compact.getAttribute(-1);
+            }
+        }, "getAttribute(-1)");
+        checkThrows(IndexOutOfBoundsException.class, new Runnable() {
+            public void run() {
+                compact.setAttribute(64, null);
+            }
+        }, "setAttribute(64, null)");
+        check(!compact.isNull(GdeltFeature.Attributes.GLOBALEVENTID),
+              "setAttribute(64, null) nulled GLOBALEVENTID");
+        // index 64 aliases bit 0 of the bitmap, so check it while GLOBALEVENTID is null as well
+        final Object eventId = compact.getAttribute(GdeltFeature.Attributes.GLOBALEVENTID.ordinal());
+        compact.setNull(GdeltFeature.Attributes.GLOBALEVENTID);
+        checkThrows(IndexOutOfBoundsException.class, new Runnable() {
+            public void run() {
+                compact.getAttribute(64);
+            }
+        }, "getAttribute(64) with GLOBALEVENTID null");
+        compact.setAttribute(GdeltFeature.Attributes.GLOBALEVENTID.ordinal(), eventId);
+
+        // typed accessors reject attributes of another kind
+        checkThrows(IllegalArgumentException.class, new Runnable() {
+            public void run() {
+                compact.getInt(GdeltFeature.Attributes.SQLDATE);
+            }
+        }, "getInt(SQLDATE)");
+        checkThrows(IllegalArgumentException.class, new Runnable() {
+            public void run() {
+                compact.getFloat(GdeltFeature.Attributes.GLOBALEVENTID);
+            }
+        }, "getFloat(GLOBALEVENTID)");
+        checkThrows(IllegalArgumentException.class, new Runnable() {
+            public void run() {
+                compact.getDateMillis(GdeltFeature.Attributes.AvgTone);
+            }
+        }, "getDateMillis(AvgTone)");
+
+        // property views see later writes
+        Property property = compact.getProperty(GdeltFeature.Attributes.NumMentions.getName());
+        check(sameValue(compact.getAttribute(GdeltFeature.Attributes.NumMentions.getName()), property.getValue()),
+              "property view does not match the feature");
+        compact.setInt(GdeltFeature.Attributes.NumMentions, 42);
+        check(Integer.valueOf(42).equals(property.getValue()), "property view did not see a later write");
+        check(property.equals(compact.getProperty(GdeltFeature.Attributes.NumMentions.getName())),
+              "property view is not equal to a fresh view after a write");
+        property.setValue(7);
+        check(compact.getInt(GdeltFeature.Attributes.NumMentions) == 7, "property view did not write through");
+
+        // a type with the right names but a different binding is rejected
+        StringBuilder spec = new StringBuilder();
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            if (spec.length() > 0) {
+                spec.append(',');
+            }
+            if (attribute == GdeltFeature.Attributes.geom) {
+                spec.append("*geom:Point:srid=4326");
+            } else if (attribute == GdeltFeature.Attributes.SQLDATE) {
+                spec.append("SQLDATE:String");
+            } else {
+                spec.append(attribute.getName()).append(':').append(attribute.getType());
+            }
+        }
+        final SimpleFeatureType mismatched = DataUtilities.createType("mismatched", spec.toString());
+        checkThrows(IllegalArgumentException.class, new Runnable() {
+            public void run() {
+                new GdeltSimpleFeature(mismatched, "mismatched");
+            }
+        }, "a type with SQLDATE:String");
+
+        System.out.println("  ok");
+        System.out.println();
+    }
+
+    /**
+     * Measures the retained heap of the default and compact feature implementations.
+     *
+     * @param featureType
+     * @param count
+     */
+    static void memoryBenchmark(SimpleFeatureType featureType, int count) {
+        System.out.println("Memory footprint for " + count + " features");
+
+        long before = usedMemory();
+        SimpleFeature[] defaults = buildDefaultFeatures(featureType, count);
+        long defaultBytes = usedMemory() - before;
+        System.out.println(String.format("  default: %,d bytes/feature", defaultBytes / count));
+        // keep the features reachable until after we have measured them
+        System.out.println("  (" + defaults[count - 1].getID() + ")");
+        defaults = null;
+
+        before = usedMemory();
+        GdeltSimpleFeature[] compacts = buildCompactFeatures(featureType, count);
+        long compactBytes = usedMemory() - before;
+        System.out.println(String.format("  compact: %,d bytes/feature", compactBytes / count));
+        System.out.println("  (" + compacts[count - 1].getID() + ")");
+        System.out.println();
+    }
+
+    private static double readGeneric(SimpleFeature[] features) {
+        double sum = 0;
+        for (SimpleFeature feature : features) {
+            for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+                Object value = feature.getAttribute(attribute.ordinal());
+                if (value instanceof Number) {
+                    sum += ((Number) value).doubleValue();
+                } else if (value instanceof Date) {
+                    sum += ((Date) value).getTime();
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static double readTyped(GdeltSimpleFeature[] features) {
+        double sum = 0;
+        for (GdeltSimpleFeature feature : features) {
+            for (GdeltFeature.Attributes attribute : INT_ATTRIBUTES) {
+                if (!feature.isNull(attribute)) {
+                    sum += feature.getInt(attribute);
+                }
+            }
+            for (GdeltFeature.Attributes attribute : FLOAT_ATTRIBUTES) {
+                if (!feature.isNull(attribute)) {
+                    sum += feature.getFloat(attribute);
+                }
+            }
+            for (GdeltFeature.Attributes attribute : DATE_ATTRIBUTES) {
+                if (!feature.isNull(attribute)) {
+                    sum += feature.getDateMillis(attribute);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Measures how quickly all numeric and date attributes can be read from each implementation.
+     *
+     * @param featureType
+     * @param count
+     * @param iterations
+     */
+    static void throughputBenchmark(SimpleFeatureType featureType, int count, int iterations) {
+        System.out.println("Access throughput for " + count + " features, " + iterations + " iterations");
+
+        SimpleFeature[] defaults = buildDefaultFeatures(featureType, count);
+        GdeltSimpleFeature[] compacts = buildCompactFeatures(featureType, count);
+
+        // warm up the JIT on all three paths before timing anything
+        double check = 0;
+        for (int i = 0; i < iterations; i++) {
+            check += readGeneric(defaults) + readGeneric(compacts) + readTyped(compacts);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            check += readGeneric(defaults);
+        }
+        report("default getAttribute", start, count, iterations);
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            check += readGeneric(compacts);
+        }
+        report("compact getAttribute", start, count, iterations);
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            check += readTyped(compacts);
+        }
+        report("compact typed", start, count, iterations);
+
+        // print the checksum so the reads can't be optimized away
+        System.out.println("  (checksum " + check + ")");
+        System.out.println();
+    }
+
+    private static void report(String label, long start, int count, int iterations) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("  %-22s %,.0f features/sec", label, count * (double) iterations / seconds));
+    }
+
+    /**
+     * Main entry point. Runs the memory and throughput benchmarks.
+     *
+     * @param args
+     *
+     * @throws Exception
+     */
+    public static void main(String[] args)
+            throws Exception {
+        CommandLineParser parser = new BasicParser();
+        Options options = new Options();
+        options.addOption(OptionBuilder.withArgName(COUNT_ARG).hasArg()
+                                       .withDescription(
+                                               "the number of features to create, e.g.:  100000")
+                                       .create(COUNT_ARG));
+        options.addOption(OptionBuilder.withArgName(ITERATIONS_ARG).hasArg()
+                                       .withDescription(
+                                               "the number of passes over the features when measuring throughput, e.g.:  20")
+                                       .create(ITERATIONS_ARG));
+        CommandLine cmd = parser.parse(options, args);
+
+        int count = Integer.parseInt(cmd.getOptionValue(COUNT_ARG, "100000"));
+        int iterations = Integer.parseInt(cmd.getOptionValue(ITERATIONS_ARG, "20"));
+        if (count < 1 || iterations < 1) {
+            System.err.println(COUNT_ARG + " and " + ITERATIONS_ARG + " must be at least 1");
+            new HelpFormatter().printHelp(GdeltFeatureBenchmark.class.getSimpleName(), options);
+            System.exit(1);
+        }
+
+        SimpleFeatureType featureType = GdeltFeature.buildGdeltFeatureType("gdelt");
+
+        // the parity check doesn't need the full batch
+        verify(featureType, Math.min(count, 1000));
+        memoryBenchmark(featureType, count);
+        throughputBenchmark(featureType, count, iterations);
+    }
+}
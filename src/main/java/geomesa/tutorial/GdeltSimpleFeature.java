@@ -0,0 +1,645 @@
+package geomesa.tutorial;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import org.geotools.feature.type.AttributeDescriptorImpl;
+import org.geotools.feature.type.Types;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.geotools.util.Utilities;
+import org.opengis.feature.Attribute;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.AttributeType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.GeometryType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.filter.identity.Identifier;
+import org.opengis.geometry.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright 2014 Commonwealth Computer Research, Inc.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an AS IS BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A SimpleFeature specialized for the GDELT schema described by {@link GdeltFeature.Attributes}.
+ * <p/>
+ * Integer and Float attributes are kept in primitive arrays, Date attributes are kept as epoch
+ * millis, and nulls are tracked in a bitmap. Values are only boxed when they are requested through
+ * the generic SimpleFeature API - use the typed accessors (e.g. {@link #getInt}) to avoid that.
+ */
+public class GdeltSimpleFeature implements SimpleFeature {
+
+    private static final GdeltFeature.Attributes[] ATTRIBUTES = GdeltFeature.Attributes.values();
+
+    // how each attribute is stored
+    private static final int INT = 0;
+    private static final int FLOAT = 1;
+    private static final int DATE = 2;
+    private static final int OBJECT = 3;
+
+    // storage kind and offset into the matching array, indexed by attribute ordinal
+    private static final int[] KINDS = new int[ATTRIBUTES.length];
+    private static final int[] SLOTS = new int[ATTRIBUTES.length];
+
+    // binding the feature type must declare for each attribute
+    private static final Class<?>[] BINDINGS = new Class<?>[ATTRIBUTES.length];
+
+    private static final int INT_COUNT;
+    private static final int FLOAT_COUNT;
+    private static final int DATE_COUNT;
+    private static final int OBJECT_COUNT;
+
+    static {
+        // the null bitmap is a single long
+        if (ATTRIBUTES.length > Long.SIZE) {
+            throw new IllegalStateException("Too many attributes for null bitmap: " + ATTRIBUTES.length);
+        }
+        int ints = 0;
+        int floats = 0;
+        int dates = 0;
+        int objects = 0;
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            int i = attribute.ordinal();
+            if ("Integer".equals(attribute.getType())) {
+                KINDS[i] = INT;
+                SLOTS[i] = ints++;
+                BINDINGS[i] = Integer.class;
+            } else if ("Float".equals(attribute.getType())) {
+                KINDS[i] = FLOAT;
+                SLOTS[i] = floats++;
+                BINDINGS[i] = Float.class;
+            } else if ("Date".equals(attribute.getType())) {
+                KINDS[i] = DATE;
+                SLOTS[i] = dates++;
+                BINDINGS[i] = Date.class;
+            } else if ("String".equals(attribute.getType())) {
+                KINDS[i] = OBJECT;
+                SLOTS[i] = objects++;
+                BINDINGS[i] = String.class;
+            } else if ("Point".equals(attribute.getType())) {
+                KINDS[i] = OBJECT;
+                SLOTS[i] = objects++;
+                BINDINGS[i] = Point.class;
+            } else {
+                throw new IllegalStateException("Unsupported type " + attribute.getType() + " for " +
+                                                attribute.getName());
+            }
+        }
+        INT_COUNT = ints;
+        FLOAT_COUNT = floats;
+        DATE_COUNT = dates;
+        OBJECT_COUNT = objects;
+    }
+
+    // the most recent feature type to pass checkFeatureType - features are normally built in
+    // batches against a single type, so this avoids re-checking all 58 descriptors per feature
+    private static volatile SimpleFeatureType lastCheckedType;
+
+    private final SimpleFeatureType featureType;
+    private final FeatureId id;
+
+    private final int[] ints = new int[INT_COUNT];
+    private final float[] floats = new float[FLOAT_COUNT];
+    private final long[] dates = new long[DATE_COUNT];
+    private final Object[] objects = new Object[OBJECT_COUNT];
+
+    // bit i is set when attribute i is null - all attributes start out null
+    private long nulls = ATTRIBUTES.length == Long.SIZE ? -1L : (1L << ATTRIBUTES.length) - 1;
+
+    private Map<Object, Object> userData;
+
+    // user data for the attribute views, created on demand
+    private Map<Object, Object>[] attributeUserData;
+
+    /**
+     * Creates an empty feature with all attributes set to null. The feature type is checked against
+     * the GDELT schema the first time it is seen - see {@link #checkFeatureType}.
+     *
+     * @param featureType type created by {@link GdeltFeature#buildGdeltFeatureType(String)}
+     * @param id
+     */
+    public GdeltSimpleFeature(SimpleFeatureType featureType, String id) {
+        if (featureType != lastCheckedType) {
+            checkFeatureType(featureType);
+            lastCheckedType = featureType;
+        }
+        this.featureType = featureType;
+        this.id = new FeatureIdImpl(id);
+    }
+
+    /**
+     * Verifies that the feature type has the GDELT attributes, in order, with the expected bindings.
+     *
+     * @param featureType
+     * @throws IllegalArgumentException if the feature type does not match
+     */
+    public static void checkFeatureType(SimpleFeatureType featureType) {
+        if (featureType.getAttributeCount() != ATTRIBUTES.length) {
+            throw new IllegalArgumentException("Feature type " + featureType.getTypeName() +
+                                               " does not match the GDELT schema");
+        }
+        for (GdeltFeature.Attributes attribute : ATTRIBUTES) {
+            String name = featureType.getDescriptor(attribute.ordinal()).getLocalName();
+            if (!attribute.getName().equals(name)) {
+                throw new IllegalArgumentException("Feature type " + featureType.getTypeName() +
+                                                   " does not match the GDELT schema: expected " +
+                                                   attribute.getName() + " but found " + name);
+            }
+            Class<?> binding = featureType.getDescriptor(attribute.ordinal()).getType().getBinding();
+            if (!BINDINGS[attribute.ordinal()].equals(binding)) {
+                throw new IllegalArgumentException("Feature type " + featureType.getTypeName() +
+                                                   " does not match the GDELT schema: expected " +
+                                                   attribute.getName() + " to be " +
+                                                   BINDINGS[attribute.ordinal()].getSimpleName() +
+                                                   " but found " + binding.getSimpleName());
+            }
+        }
+    }
+
+    // typed accessors - these never box
+
+    public boolean isNull(GdeltFeature.Attributes attribute) {
+        return (nulls & (1L << attribute.ordinal())) != 0;
+    }
+
+    /**
+     * Returns the value of an Integer attribute, or 0 if it is null - see {@link #isNull}.
+     *
+     * @param attribute
+     * @return
+     */
+    public int getInt(GdeltFeature.Attributes attribute) {
+        return ints[slot(attribute, INT)];
+    }
+
+    public void setInt(GdeltFeature.Attributes attribute, int value) {
+        ints[slot(attribute, INT)] = value;
+        clearNull(attribute.ordinal());
+    }
+
+    /**
+     * Returns the value of a Float attribute, or 0 if it is null - see {@link #isNull}.
+     *
+     * @param attribute
+     * @return
+     */
+    public float getFloat(GdeltFeature.Attributes attribute) {
+        return floats[slot(attribute, FLOAT)];
+    }
+
+    public void setFloat(GdeltFeature.Attributes attribute, float value) {
+        floats[slot(attribute, FLOAT)] = value;
+        clearNull(attribute.ordinal());
+    }
+
+    /**
+     * Returns the value of a Date attribute in millis since the epoch, or 0 if it is null - see
+     * {@link #isNull}.
+     *
+     * @param attribute
+     * @return
+     */
+    public long getDateMillis(GdeltFeature.Attributes attribute) {
+        return dates[slot(attribute, DATE)];
+    }
+
+    public void setDateMillis(GdeltFeature.Attributes attribute, long millis) {
+        dates[slot(attribute, DATE)] = millis;
+        clearNull(attribute.ordinal());
+    }
+
+    public void setNull(GdeltFeature.Attributes attribute) {
+        setNull(attribute.ordinal());
+    }
+
+    private static int slot(GdeltFeature.Attributes attribute, int kind) {
+        int i = attribute.ordinal();
+        if (KINDS[i] != kind) {
+            throw new IllegalArgumentException("Attribute " + attribute.getName() + " is of type " +
+                                               attribute.getType());
+        }
+        return SLOTS[i];
+    }
+
+    private void setNull(int index) {
+        checkIndex(index);
+        nulls |= 1L << index;
+        switch (KINDS[index]) {
+            case INT:
+                ints[SLOTS[index]] = 0;
+                break;
+            case FLOAT:
+                floats[SLOTS[index]] = 0f;
+                break;
+            case DATE:
+                dates[SLOTS[index]] = 0L;
+                break;
+            default:
+                objects[SLOTS[index]] = null;
+        }
+    }
+
+    // long shifts are masked to 6 bits, so an unchecked index would alias a valid bit
+    private static void checkIndex(int index) {
+        if (index < 0 || index >= ATTRIBUTES.length) {
+            throw new IndexOutOfBoundsException("Attribute index " + index + " is out of range 0-" +
+                                                (ATTRIBUTES.length - 1));
+        }
+    }
+
+    private void clearNull(int index) {
+        nulls &= ~(1L << index);
+    }
+
+    // SimpleFeature
+
+    public String getID() {
+        return id.getID();
+    }
+
+    public FeatureId getIdentifier() {
+        return id;
+    }
+
+    public SimpleFeatureType getType() {
+        return featureType;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    public int getAttributeCount() {
+        return ATTRIBUTES.length;
+    }
+
+    public Object getAttribute(int index) {
+        checkIndex(index);
+        if ((nulls & (1L << index)) != 0) {
+            return null;
+        }
+        switch (KINDS[index]) {
+            case INT:
+                return ints[SLOTS[index]];
+            case FLOAT:
+                return floats[SLOTS[index]];
+            case DATE:
+                return new Date(dates[SLOTS[index]]);
+            default:
+                return objects[SLOTS[index]];
+        }
+    }
+
+    public Object getAttribute(String name) {
+        int index = featureType.indexOf(name);
+        return index == -1 ? null : getAttribute(index);
+    }
+
+    public Object getAttribute(Name name) {
+        return getAttribute(name.getLocalPart());
+    }
+
+    public void setAttribute(int index, Object value) {
+        checkIndex(index);
+        if (value == null) {
+            setNull(index);
+            return;
+        }
+        Object converted = convert(index, value);
+        switch (KINDS[index]) {
+            case INT:
+                ints[SLOTS[index]] = ((Integer) converted).intValue();
+                break;
+            case FLOAT:
+                floats[SLOTS[index]] = ((Float) converted).floatValue();
+                break;
+            case DATE:
+                dates[SLOTS[index]] = ((Date) converted).getTime();
+                break;
+            default:
+                objects[SLOTS[index]] = converted;
+        }
+        clearNull(index);
+    }
+
+    public void setAttribute(String name, Object value) {
+        int index = featureType.indexOf(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("Unknown attribute " + name);
+        }
+        setAttribute(index, value);
+    }
+
+    public void setAttribute(Name name, Object value) {
+        setAttribute(name.getLocalPart(), value);
+    }
+
+    /**
+     * Converts a value to the binding of its attribute, the same way SimpleFeatureBuilder does.
+     *
+     * @param index
+     * @param value
+     * @return
+     */
+    private Object convert(int index, Object value) {
+        Class<?> binding = featureType.getDescriptor(index).getType().getBinding();
+        if (binding.isInstance(value)) {
+            return value;
+        }
+        Object converted = Converters.convert(value, binding);
+        if (converted == null) {
+            throw new IllegalArgumentException("Invalid value for " + ATTRIBUTES[index].getName() +
+                                               ": " + value);
+        }
+        return converted;
+    }
+
+    public List<Object> getAttributes() {
+        List<Object> attributes = new ArrayList<Object>(ATTRIBUTES.length);
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            attributes.add(getAttribute(i));
+        }
+        return attributes;
+    }
+
+    public void setAttributes(List<Object> values) {
+        setAttributes(values.toArray());
+    }
+
+    public void setAttributes(Object[] values) {
+        if (values.length != ATTRIBUTES.length) {
+            throw new IllegalArgumentException("Expected " + ATTRIBUTES.length + " attributes but got " +
+                                               values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            setAttribute(i, values[i]);
+        }
+    }
+
+    public Object getDefaultGeometry() {
+        return getAttribute(GdeltFeature.Attributes.geom.ordinal());
+    }
+
+    public void setDefaultGeometry(Object geometry) {
+        setAttribute(GdeltFeature.Attributes.geom.ordinal(), geometry);
+    }
+
+    public GeometryAttribute getDefaultGeometryProperty() {
+        return new GeometryAttr(GdeltFeature.Attributes.geom.ordinal());
+    }
+
+    public void setDefaultGeometryProperty(GeometryAttribute geometryAttribute) {
+        setDefaultGeometry(geometryAttribute == null ? null : geometryAttribute.getValue());
+    }
+
+    public BoundingBox getBounds() {
+        return getDefaultGeometryProperty().getBounds();
+    }
+
+    // ComplexAttribute
+
+    public Collection<? extends Property> getValue() {
+        return getProperties();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setValue(Object value) {
+        setValue((Collection<Property>) value);
+    }
+
+    public void setValue(Collection<Property> values) {
+        for (Property property : values) {
+            setAttribute(property.getName(), property.getValue());
+        }
+    }
+
+    public Collection<Property> getProperties() {
+        List<Property> properties = new ArrayList<Property>(ATTRIBUTES.length);
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            properties.add(createProperty(i));
+        }
+        return properties;
+    }
+
+    public Collection<Property> getProperties(Name name) {
+        return getProperties(name.getLocalPart());
+    }
+
+    public Collection<Property> getProperties(String name) {
+        Property property = getProperty(name);
+        if (property == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(property);
+    }
+
+    public Property getProperty(Name name) {
+        return getProperty(name.getLocalPart());
+    }
+
+    public Property getProperty(String name) {
+        int index = featureType.indexOf(name);
+        return index == -1 ? null : createProperty(index);
+    }
+
+    private Property createProperty(int index) {
+        if (featureType.getDescriptor(index) instanceof GeometryDescriptor) {
+            return new GeometryAttr(index);
+        }
+        return new Attr(index);
+    }
+
+    public void validate() {
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            Types.validate(featureType.getDescriptor(i), getAttribute(i));
+        }
+    }
+
+    public AttributeDescriptor getDescriptor() {
+        return new AttributeDescriptorImpl(featureType, featureType.getName(), 0, Integer.MAX_VALUE, true, null);
+    }
+
+    public Name getName() {
+        return featureType.getName();
+    }
+
+    public boolean isNillable() {
+        return true;
+    }
+
+    public Map<Object, Object> getUserData() {
+        if (userData == null) {
+            userData = new HashMap<Object, Object>();
+        }
+        return userData;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof GdeltSimpleFeature)) {
+            return false;
+        }
+        GdeltSimpleFeature other = (GdeltSimpleFeature) obj;
+        return id.equals(other.id) &&
+               featureType.equals(other.featureType) &&
+               nulls == other.nulls &&
+               Arrays.equals(ints, other.ints) &&
+               Arrays.equals(floats, other.floats) &&
+               Arrays.equals(dates, other.dates) &&
+               Arrays.equals(objects, other.objects);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode() * featureType.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "GdeltSimpleFeature:" + getID() + ":" + getAttributes();
+    }
+
+    /**
+     * Attribute view that reads and writes through to the owning feature. Nothing is cached, so the
+     * value is only boxed when it is asked for.
+     */
+    private class Attr implements Attribute {
+
+        protected final int index;
+
+        Attr(int index) {
+            this.index = index;
+        }
+
+        public Object getValue() {
+            return getAttribute(index);
+        }
+
+        public void setValue(Object newValue) {
+            setAttribute(index, newValue);
+        }
+
+        public AttributeDescriptor getDescriptor() {
+            return featureType.getDescriptor(index);
+        }
+
+        public AttributeType getType() {
+            return getDescriptor().getType();
+        }
+
+        public Name getName() {
+            return getDescriptor().getName();
+        }
+
+        public boolean isNillable() {
+            return getDescriptor().isNillable();
+        }
+
+        public Identifier getIdentifier() {
+            return null;
+        }
+
+        public void validate() {
+            Types.validate(getDescriptor(), getValue());
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Map<Object, Object> getUserData() {
+            if (attributeUserData == null) {
+                attributeUserData = new Map[ATTRIBUTES.length];
+            }
+            if (attributeUserData[index] == null) {
+                attributeUserData[index] = new HashMap<Object, Object>();
+            }
+            return attributeUserData[index];
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Attribute)) {
+                return false;
+            }
+            Attribute other = (Attribute) obj;
+            return Utilities.equals(getDescriptor(), other.getDescriptor()) &&
+                   Utilities.equals(getIdentifier(), other.getIdentifier()) &&
+                   Utilities.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return 37 * getDescriptor().hashCode() + (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + ":" + getName().getLocalPart() + "=" + getValue();
+        }
+    }
+
+    /**
+     * Geometry attribute view - bounds are computed from the current geometry on each call.
+     */
+    private class GeometryAttr extends Attr implements GeometryAttribute {
+
+        GeometryAttr(int index) {
+            super(index);
+        }
+
+        @Override
+        public GeometryDescriptor getDescriptor() {
+            return (GeometryDescriptor) featureType.getDescriptor(index);
+        }
+
+        @Override
+        public GeometryType getType() {
+            return getDescriptor().getType();
+        }
+
+        public BoundingBox getBounds() {
+            ReferencedEnvelope bounds = new ReferencedEnvelope(getDescriptor().getCoordinateReferenceSystem());
+            Object geometry = getValue();
+            if (geometry instanceof Geometry) {
+                bounds.expandToInclude(((Geometry) geometry).getEnvelopeInternal());
+            }
+            return bounds;
+        }
+
+        public void setBounds(BoundingBox bounds) {
+            throw new UnsupportedOperationException("Bounds are derived from the geometry");
+        }
+    }
+}